@@ -1,433 +1,356 @@
 import java.io.*;
 import java.util.*;
+import java.util.stream.Stream;
 
-// 分数类
-class Fraction {
-    private int numerator;
-    private int denominator;
-    private int whole;
-
-    public Fraction(int numerator, int denominator) {
-        if (denominator == 0) throw new IllegalArgumentException("分母不能为0");
-        this.numerator = Math.abs(numerator);
-        this.denominator = Math.abs(denominator);
-        this.whole = 0;
-        normalize();
-    }
+import primatrain.ExerciseGeneratorPool;
 
-    public Fraction(int whole, int numerator, int denominator) {
-        if (denominator == 0) throw new IllegalArgumentException("分母不能为0");
-        this.whole = Math.abs(whole);
-        this.numerator = Math.abs(numerator);
-        this.denominator = Math.abs(denominator);
-        normalize();
-    }
+// 批改用表达式求值器：直接在行内按下标扫描求值，不切分字符串、不创建对象
+// 计算规则与 ImprovedExpressionGenerator 一致：括号内先算，其余从左到右
+class ExpressionEvaluator {
+    private String source;
+    private int pos;
+    private int end;
 
-    private void normalize() {
-        if (numerator >= denominator) {
-            whole += numerator / denominator;
-            numerator %= denominator;
-        }
+    // 求值结果（最简分数）
+    private long numerator;
+    private long denominator;
+    // 最后一步运算约分前的结果
+    private long rawNumerator;
+    private long rawDenominator;
+    private boolean hasRaw;
 
-        int gcd = gcd(numerator, denominator);
-        numerator /= gcd;
-        denominator /= gcd;
+    // 计算 expression 中 [from, to) 部分的值，忽略空白和等号；格式错误或除数为0时抛出异常
+    public void evaluate(String expression, int from, int to) {
+        source = expression;
+        pos = from;
+        end = to;
+        hasRaw = false;
 
-        if (numerator == 0) denominator = 1;
-    }
+        evaluateSequence();
+        skipBlanks();
+        if (pos != end) throw new IllegalArgumentException("表达式格式错误");
 
-    private int gcd(int a, int b) {
-        return b == 0 ? a : gcd(b, a % b);
+        if (!hasRaw) {
+            rawNumerator = numerator;
+            rawDenominator = denominator;
+        }
     }
 
-    public Fraction add(Fraction other) {
-        long num1 = this.getNumeratorValue();
-        long den1 = this.denominator;
-        long num2 = other.getNumeratorValue();
-        long den2 = other.denominator;
-        return new Fraction((int)(num1 * den2 + num2 * den1), (int)(den1 * den2));
+    public long getNumerator() {
+        return numerator;
     }
 
-    public Fraction subtract(Fraction other) {
-        long num1 = this.getNumeratorValue();
-        long den1 = this.denominator;
-        long num2 = other.getNumeratorValue();
-        long den2 = other.denominator;
-        return new Fraction((int)(num1 * den2 - num2 * den1), (int)(den1 * den2));
+    public long getDenominator() {
+        return denominator;
     }
 
-    public Fraction multiply(Fraction other) {
-        long num1 = this.getNumeratorValue();
-        long den1 = this.denominator;
-        long num2 = other.getNumeratorValue();
-        long den2 = other.denominator;
-        return new Fraction((int)(num1 * num2), (int)(den1 * den2));
+    public long getRawNumerator() {
+        return rawNumerator;
     }
 
-    public Fraction divide(Fraction other) {
-        if (other.getNumeratorValue() == 0) throw new ArithmeticException("除数不能为0");
-        long num1 = this.getNumeratorValue();
-        long den1 = this.denominator;
-        long num2 = other.getNumeratorValue();
-        long den2 = other.denominator;
-        return new Fraction((int)(num1 * den2), (int)(den1 * num2));
+    public long getRawDenominator() {
+        return rawDenominator;
     }
 
-    public int getNumeratorValue() {
-        return whole * denominator + numerator;
-    }
+    private void evaluateSequence() {
+        evaluateOperand();
+        long n = numerator;
+        long d = denominator;
 
-    public boolean greaterOrEqual(Fraction other) {
-        return this.getNumeratorValue() * (long)other.denominator >= other.getNumeratorValue() * (long)this.denominator;
-    }
+        while (true) {
+            skipBlanks();
+            if (pos >= end) break;
+            char op = source.charAt(pos);
+            if (op != '+' && op != '-' && op != '×' && op != '÷') break;
+            pos++;
 
-    @Override
-    public boolean equals(Object obj) {
-        if (this == obj) return true;
-        if (!(obj instanceof Fraction other)) return false;
-        return this.getNumeratorValue() * (long)other.denominator == other.getNumeratorValue() * (long)this.denominator;
-    }
-
-    @Override
-    public int hashCode() {
-        Fraction simplified = new Fraction(getNumeratorValue(), denominator);
-        return Objects.hash(simplified.numerator, simplified.denominator);
-    }
+            evaluateOperand();
+            apply(n, d, op, numerator, denominator);
+            n = numerator;
+            d = denominator;
+        }
 
-    @Override
-    public String toString() {
-        if (whole == 0) return numerator == 0 ? "0" : numerator + "/" + denominator;
-        return numerator == 0 ? String.valueOf(whole) : whole + "'" + numerator + "/" + denominator;
+        numerator = n;
+        denominator = d;
     }
 
-    public static Fraction parseFraction(String str) {
-        str = str.trim();
-        if (str.contains("'")) {
-            String[] parts = str.split("'");
-            int whole = Integer.parseInt(parts[0]);
-            String[] fractionParts = parts[1].split("/");
-            return new Fraction(whole, Integer.parseInt(fractionParts[0]), Integer.parseInt(fractionParts[1]));
-        } else if (str.contains("/")) {
-            String[] parts = str.split("/");
-            return new Fraction(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+    private void evaluateOperand() {
+        skipBlanks();
+        if (pos < end && source.charAt(pos) == '(') {
+            pos++;
+            evaluateSequence();
+            skipBlanks();
+            if (pos >= end || source.charAt(pos) != ')') throw new IllegalArgumentException("括号不匹配");
+            pos++;
         } else {
-            return new Fraction(Integer.parseInt(str), 1);
+            parseNumber();
         }
     }
 
-    public boolean isProperFraction() {
-        return whole == 0 && numerator < denominator;
-    }
-
-    public boolean isZero() {
-        return whole == 0 && numerator == 0;
-    }
-
-    public boolean isNegative() {
-        return false; // 分数永远不会出现负数
-    }
-}
-
-// 表达式生成器
-class ImprovedExpressionGenerator {
-    private final int range;
-    private final Random random;
-    private final Set<String> expressionHashes;
-
-    public ImprovedExpressionGenerator(int range) {
-        this.range = range;
-        this.random = new Random();
-        this.expressionHashes = new HashSet<>();
+    // 操作数不超过 int 范围，交叉相乘不会溢出 long
+    private void apply(long n1, long d1, char op, long n2, long d2) {
+        long n;
+        long d;
+        switch (op) {
+            case '+':
+                n = n1 * d2 + n2 * d1;
+                d = d1 * d2;
+                break;
+            case '-':
+                n = Math.abs(n1 * d2 - n2 * d1); // 与 Fraction 一致取绝对值
+                d = d1 * d2;
+                break;
+            case '×':
+                n = n1 * n2;
+                d = d1 * d2;
+                break;
+            default:
+                if (n2 == 0) throw new ArithmeticException("除数不能为0");
+                n = n1 * d2;
+                d = d1 * n2;
+                break;
+        }
+        rawNumerator = n;
+        rawDenominator = d;
+        hasRaw = true;
+        setReduced(n, d);
+    }
+
+    // 支持 "w'n/d"、"n/d"、"w" 三种写法
+    private void parseNumber() {
+        long first = readDigits();
+        if (pos < end && source.charAt(pos) == '\'') {
+            pos++;
+            long n = readDigits();
+            if (pos >= end || source.charAt(pos) != '/') throw new IllegalArgumentException("带分数格式错误");
+            pos++;
+            long d = readDigits();
+            if (d == 0) throw new IllegalArgumentException("分母不能为0");
+            setReduced(first * d + n, d);
+        } else if (pos < end && source.charAt(pos) == '/') {
+            pos++;
+            long d = readDigits();
+            if (d == 0) throw new IllegalArgumentException("分母不能为0");
+            setReduced(first, d);
+        } else {
+            numerator = first;
+            denominator = 1;
+        }
     }
 
-    // 生成表达式（1-3个运算符）
-    public String[] generateExpression(int maxAttempts) {
-        for (int attempt = 0; attempt < maxAttempts; attempt++) {
-            try {
-                int operatorCount = random.nextInt(3) + 1; // 1-3个运算符
-                String[] result = generateValidExpression(operatorCount);
-
-                if (result != null && !expressionHashes.contains(result[2])) {
-                    expressionHashes.add(result[2]);
-                    return new String[]{result[0], result[1]};
-                }
-            } catch (Exception e) {
-                // 忽略错误，继续尝试
-            }
+    private long readDigits() {
+        int start = pos;
+        long value = 0;
+        while (pos < end) {
+            char c = source.charAt(pos);
+            if (c < '0' || c > '9') break;
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) throw new ArithmeticException("数值超出范围");
+            pos++;
         }
-        return null;
+        if (pos == start) throw new IllegalArgumentException("缺少数字");
+        return value;
     }
 
-    private String[] generateValidExpression(int operatorCount) {
-        if (operatorCount == 1) {
-            return generateValidOneOperatorExpression();
-        } else if (operatorCount == 2) {
-            return generateValidTwoOperatorExpression();
-        } else {
-            return generateValidThreeOperatorExpression();
+    private void setReduced(long n, long d) {
+        long g = gcd(n, d);
+        numerator = n / g;
+        denominator = d / g;
+        if (numerator > Integer.MAX_VALUE || denominator > Integer.MAX_VALUE) {
+            throw new ArithmeticException("数值超出范围");
         }
     }
 
-    private String[] generateValidOneOperatorExpression() {
-        for (int attempt = 0; attempt < 50; attempt++) {
-            String operator = getRandomOperator();
-            Fraction num1 = generateNumber();
-            Fraction num2 = generateNumber();
-
-            // 确保运算合法性
-            if (!isOperationValid(operator, num1, num2)) {
-                continue;
-            }
-
-            String expression = num1 + " " + operator + " " + num2;
-            Fraction result = calculateSimple(expression);
-
-            // 验证结果
-            if (result.isNegative()) {
-                continue;
-            }
-
-            String hash = generateHash(expression, result);
-            return new String[]{expression + " =", result.toString(), hash};
+    private void skipBlanks() {
+        while (pos < end) {
+            char c = source.charAt(pos);
+            if (c > ' ' && c != '=') break;
+            pos++;
         }
-        return null;
     }
 
-    private String[] generateValidTwoOperatorExpression() {
-        for (int attempt = 0; attempt < 50; attempt++) {
-            String op1 = getRandomOperator();
-            String op2 = getRandomOperator();
-
-            Fraction num1 = generateNumber();
-            Fraction num2 = generateNumber();
-            Fraction num3 = generateNumber();
-
-            // 构建表达式
-            String expression = buildTwoOperatorExpression(op1, op2, num1, num2, num3);
-
-            // 验证整个表达式的合法性
-            if (!isExpressionValid(expression)) {
-                continue;
-            }
-
-            Fraction result = calculateComplexExpression(expression);
-
-            // 验证最终结果
-            if (result.isNegative()) {
-                continue;
-            }
-
-            String hash = generateHash(expression, result);
-            return new String[]{expression + " =", result.toString(), hash};
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
         }
-        return null;
+        return a;
     }
+}
 
-    private String[] generateValidThreeOperatorExpression() {
-        for (int attempt = 0; attempt < 50; attempt++) {
-            String op1 = getRandomOperator();
-            String op2 = getRandomOperator();
-            String op3 = getRandomOperator();
-
-            Fraction num1 = generateNumber();
-            Fraction num2 = generateNumber();
-            Fraction num3 = generateNumber();
-            Fraction num4 = generateNumber();
-
-            // 构建表达式
-            String expression = buildThreeOperatorExpression(op1, op2, op3, num1, num2, num3, num4);
-
-            // 验证整个表达式的合法性
-            if (!isExpressionValid(expression)) {
-                continue;
-            }
-
-            Fraction result = calculateComplexExpression(expression);
+// 答案分类器：识别等价写法与常见错误，输出单字符诊断代码
+class AnswerClassifier {
+    // 诊断代码
+    public static final char EXACT = 'A';          // 与标准写法完全一致
+    public static final char UNREDUCED = 'U';      // 未约分（等价）
+    public static final char IMPROPER = 'I';       // 假分数而非带分数（等价）
+    public static final char DECIMAL = 'D';        // 小数写法（等价）
+    public static final char OFF_BY_REDUCTION = 'R'; // 约分出错：约分前结果只约了分子或分母
+    public static final char SWAPPED = 'S';        // 分子分母颠倒
+    public static final char WRONG = 'X';          // 其他错误
+    public static final char UNPARSEABLE = 'P';    // 答案无法解析
+    public static final char BAD_EXERCISE = 'E';   // 题目无法解析或计算
 
-            // 验证最终结果
-            if (result.isNegative()) {
-                continue;
-            }
+    // 解析结果（复用，避免每题分配对象）
+    private long parsedNumerator;
+    private long parsedDenominator;
+    private boolean parsedCanonical;
+    private boolean parsedFraction;
+    private char parsedForm;
 
-            String hash = generateHash(expression, result);
-            return new String[]{expression + " =", result.toString(), hash};
-        }
-        return null;
+    public static boolean isCorrect(char code) {
+        return code == EXACT || code == UNREDUCED || code == IMPROPER || code == DECIMAL;
     }
 
-    private boolean isOperationValid(String operator, Fraction num1, Fraction num2) {
-        try {
-            if (operator.equals("-")) {
-                // 确保减法不产生负数
-                return num1.greaterOrEqual(num2);
-            } else if (operator.equals("÷")) {
-                // 确保除法结果是真分数且除数不为0
-                if (num2.isZero()) return false;
-                Fraction result = num1.divide(num2);
-                return result.isProperFraction();
-            }
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    public static boolean isPartial(char code) {
+        return code == OFF_BY_REDUCTION || code == SWAPPED;
     }
 
-    private boolean isExpressionValid(String expression) {
-        try {
-            // 检查所有中间步骤
-            String tempExpression = expression;
-
-            // 处理括号
-            while (tempExpression.contains("(")) {
-                int start = tempExpression.lastIndexOf("(");
-                int end = tempExpression.indexOf(")", start);
-                String subExpr = tempExpression.substring(start + 1, end);
-
-                // 验证子表达式
-                if (!isSimpleExpressionValid(subExpr)) {
-                    return false;
-                }
-
-                Fraction subResult = calculateSimple(subExpr);
-                tempExpression = tempExpression.substring(0, start) + subResult.toString() + tempExpression.substring(end + 1);
-            }
-
-            // 验证剩余表达式
-            return isSimpleExpressionValid(tempExpression);
-        } catch (Exception e) {
-            return false;
+    // 将学生答案与正确答案比较，返回诊断代码。正确答案为最简分数 correctNumerator/correctDenominator，
+    // rawNumerator/rawDenominator 为其约分前的形式，学生答案为 answer 中 [from, to) 部分
+    public char classify(long correctNumerator, long correctDenominator, long rawNumerator, long rawDenominator,
+                         String answer, int from, int to) {
+        if (!parse(answer, from, to)) {
+            return UNPARSEABLE;
         }
-    }
 
-    private boolean isSimpleExpressionValid(String expression) {
-        try {
-            String[] tokens = expression.split(" ");
-            Fraction current = Fraction.parseFraction(tokens[0]);
-
-            for (int i = 1; i < tokens.length; i += 2) {
-                String operator = tokens[i];
-                Fraction next = Fraction.parseFraction(tokens[i + 1]);
+        long p = parsedNumerator;
+        long q = parsedDenominator;
 
-                if (!isOperationValid(operator, current, next)) {
-                    return false;
-                }
+        if (p * correctDenominator == correctNumerator * q) {
+            return parsedCanonical ? EXACT : parsedForm;
+        }
 
-                current = calculateSimple(current + " " + operator + " " + next);
+        if (correctNumerator != 0 && p * correctNumerator == q * correctDenominator) {
+            return SWAPPED;
+        }
 
-                if (current.isNegative()) {
-                    return false;
-                }
-            }
-            return true;
-        } catch (Exception e) {
-            return false;
+        // 按学生写下的分子分母（不约分）判断，整数和小数答案不算约分错误
+        if (parsedFraction && q > 1 && isOneTermReduced(p, q, rawNumerator, rawDenominator)) {
+            return OFF_BY_REDUCTION;
         }
-    }
 
-    private String getRandomOperator() {
-        String[] operators = {"+", "-", "×", "÷"};
-        return operators[random.nextInt(operators.length)];
+        return WRONG;
     }
 
-    private Fraction generateNumber() {
-        if (random.nextBoolean()) {
-            // 生成自然数
-            return new Fraction(random.nextInt(range - 1) + 1, 1);
-        } else {
-            // 生成真分数
-            int denominator = random.nextInt(range - 2) + 2;
-            int numerator = random.nextInt(denominator - 1) + 1;
-            return new Fraction(numerator, denominator);
+    // p/q 是否为约分前结果只把分子或只把分母除以了它们的某个公因数
+    private static boolean isOneTermReduced(long p, long q, long rawNumerator, long rawDenominator) {
+        long g = gcd(rawNumerator, rawDenominator);
+        if (g == 1 || p == 0) return false;
+        if (q == rawDenominator && p < rawNumerator && rawNumerator % p == 0) {
+            return g % (rawNumerator / p) == 0;
+        }
+        if (p == rawNumerator && q < rawDenominator && rawDenominator % q == 0) {
+            return g % (rawDenominator / q) == 0;
         }
+        return false;
     }
 
-    private String buildTwoOperatorExpression(String op1, String op2, Fraction num1, Fraction num2, Fraction num3) {
-        boolean needParentheses = needParentheses(op1, op2);
+    // 逐字符解析答案，支持 "w'n/d"、"n/d"、"w"、"w.fff" 四种写法
+    private boolean parse(String str, int from, int to) {
+        int i = from;
+        int end = to;
+        while (i < end && str.charAt(i) <= ' ') i++;
+        while (end > i && str.charAt(end - 1) <= ' ') end--;
+        if (i == end) return false;
 
-        if (needParentheses) {
-            return "(" + num1 + " " + op1 + " " + num2 + ") " + op2 + " " + num3;
-        } else {
-            return num1 + " " + op1 + " " + num2 + " " + op2 + " " + num3;
+        long first = 0;
+        int start = i;
+        while (i < end && isDigit(str.charAt(i))) {
+            first = first * 10 + (str.charAt(i) - '0');
+            if (first > Integer.MAX_VALUE) return false;
+            i++;
         }
-    }
+        if (i == start) return false;
 
-    private String buildThreeOperatorExpression(String op1, String op2, String op3, Fraction num1, Fraction num2, Fraction num3, Fraction num4) {
-        int structure = random.nextInt(4);
-        switch (structure) {
-            case 0:
-                return num1 + " " + op1 + " " + num2 + " " + op2 + " " + num3 + " " + op3 + " " + num4;
-            case 1:
-                return "(" + num1 + " " + op1 + " " + num2 + ") " + op2 + " " + num3 + " " + op3 + " " + num4;
-            case 2:
-                return num1 + " " + op1 + " (" + num2 + " " + op2 + " " + num3 + ") " + op3 + " " + num4;
-            case 3:
-                return "(" + num1 + " " + op1 + " " + num2 + ") " + op2 + " (" + num3 + " " + op3 + " " + num4 + ")";
-            default:
-                return num1 + " " + op1 + " " + num2 + " " + op2 + " " + num3 + " " + op3 + " " + num4;
+        if (i == end) {
+            // 整数
+            parsedNumerator = first;
+            parsedDenominator = 1;
+            parsedCanonical = true;
+            parsedFraction = false;
+            return true;
         }
-    }
 
-    private boolean needParentheses(String op1, String op2) {
-        Map<String, Integer> precedence = new HashMap<>();
-        precedence.put("+", 1);
-        precedence.put("-", 1);
-        precedence.put("×", 2);
-        precedence.put("÷", 2);
-        return precedence.get(op2) > precedence.get(op1);
-    }
-
-    private Fraction calculateSimple(String expression) {
-        String[] parts = expression.split(" ");
-        Fraction num1 = Fraction.parseFraction(parts[0]);
-        String op = parts[1];
-        Fraction num2 = Fraction.parseFraction(parts[2]);
-
-        switch (op) {
-            case "+":
-                return num1.add(num2);
-            case "-":
-                return num1.subtract(num2);
-            case "×":
-                return num1.multiply(num2);
-            case "÷":
-                return num1.divide(num2);
-            default:
-                throw new IllegalArgumentException("未知运算符: " + op);
+        char sep = str.charAt(i++);
+        if (sep == '.') {
+            long fractionDigits = 0;
+            long scale = 1;
+            start = i;
+            while (i < end && isDigit(str.charAt(i))) {
+                if (scale >= 1_000_000_000L) return false;
+                fractionDigits = fractionDigits * 10 + (str.charAt(i) - '0');
+                scale *= 10;
+                i++;
+            }
+            if (i != end || i == start) return false;
+            parsedNumerator = first * scale + fractionDigits;
+            if (parsedNumerator > Integer.MAX_VALUE) return false;
+            parsedDenominator = scale;
+            parsedCanonical = false;
+            parsedFraction = false;
+            parsedForm = DECIMAL;
+            return true;
         }
-    }
 
-    private Fraction calculateComplexExpression(String expression) {
-        // 处理括号表达式
-        while (expression.contains("(")) {
-            int start = expression.lastIndexOf("(");
-            int end = expression.indexOf(")", start);
-            String subExpr = expression.substring(start + 1, end);
-            Fraction subResult = calculateSimple(subExpr);
-            expression = expression.substring(0, start) + subResult.toString() + expression.substring(end + 1);
+        long whole = 0;
+        long numerator = first;
+        boolean mixed = sep == '\'';
+        if (mixed) {
+            whole = first;
+            numerator = 0;
+            start = i;
+            while (i < end && isDigit(str.charAt(i))) {
+                numerator = numerator * 10 + (str.charAt(i) - '0');
+                if (numerator > Integer.MAX_VALUE) return false;
+                i++;
+            }
+            if (i == start || i == end || str.charAt(i++) != '/') return false;
+        } else if (sep != '/') {
+            return false;
         }
 
-        // 计算剩余表达式
-        String[] tokens = expression.split(" ");
-        Fraction result = Fraction.parseFraction(tokens[0]);
-
-        for (int i = 1; i < tokens.length; i += 2) {
-            String operator = tokens[i];
-            Fraction nextNum = Fraction.parseFraction(tokens[i + 1]);
-            result = calculateSimple(result + " " + operator + " " + nextNum);
+        long denominator = 0;
+        start = i;
+        while (i < end && isDigit(str.charAt(i))) {
+            denominator = denominator * 10 + (str.charAt(i) - '0');
+            if (denominator > Integer.MAX_VALUE) return false;
+            i++;
+        }
+        if (i != end || i == start || denominator == 0) return false;
+
+        boolean reduced = gcd(numerator, denominator) == 1;
+        parsedNumerator = whole * denominator + numerator;
+        parsedDenominator = denominator;
+        if (parsedNumerator > Integer.MAX_VALUE) return false; // 超出范围，避免交叉相乘溢出
+        parsedFraction = true;
+        if (mixed) {
+            // 整数部分为0（如 "0'1/2"）不影响写法是否规范
+            parsedCanonical = reduced && numerator < denominator;
+            parsedForm = reduced ? IMPROPER : UNREDUCED;
+        } else if (denominator == 1 || (numerator >= denominator && reduced)) {
+            // "n/1" 是整数的假分数写法
+            parsedCanonical = false;
+            parsedForm = IMPROPER;
+        } else {
+            parsedCanonical = numerator > 0 && reduced;
+            parsedForm = UNREDUCED;
         }
-
-        return result;
+        return true;
     }
 
-    private String generateHash(String expression, Fraction result) {
-        return expression.replaceAll("\\s+", "").replace("(", "").replace(")", "") + "=" + result.toString();
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
-    // 静态方法用于批改
-    public static Fraction calculateExpressionForGrading(String expression) {
-        expression = expression.replace("=", "").trim();
-        ImprovedExpressionGenerator generator = new ImprovedExpressionGenerator(10);
-        return generator.calculateComplexExpression(expression);
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a == 0 ? 1 : a;
     }
 }
 
@@ -476,6 +399,7 @@ public class MathExerciseGenerator {
         System.out.println();
         System.out.println("注意:");
         System.out.println("- 批改功能可以批改任何符合格式的题目文件和答案文件");
+        System.out.println("- 未约分、假分数、小数等等价写法判为正确，逐题诊断代码写入 Diagnostics.txt");
     }
 
     // 生成题目功能
@@ -492,22 +416,19 @@ public class MathExerciseGenerator {
 
         System.out.println("正在生成 " + count + " 道题目，数值范围: 1-" + range);
 
-        ImprovedExpressionGenerator generator = new ImprovedExpressionGenerator(range);
+        ExerciseGeneratorPool pool = new ExerciseGeneratorPool();
         List<String> exercises = new ArrayList<>();
         List<String> answers = new ArrayList<>();
 
         long startTime = System.currentTimeMillis();
-        int generated = 0;
-
-        for (int i = 0; i < count; i++) {
-            String[] result = generator.generateExpression(100);
 
-            if (result != null) {
-                exercises.add((i+1) + ". " + result[0]);
-                answers.add((i+1) + ". " + result[1]);
-                generated++;
-            }
+        try (Stream<ExerciseGeneratorPool.Exercise> stream = pool.stream(ExerciseGeneratorPool.Request.of(count, range))) {
+            stream.forEach(exercise -> {
+                exercises.add(exercise.toString());
+                answers.add(exercise.number() + ". " + exercise.answer());
+            });
         }
+        int generated = exercises.size();
 
         long endTime = System.currentTimeMillis();
 
@@ -547,10 +468,12 @@ public class MathExerciseGenerator {
                 return;
             }
 
-            List<Integer> correct = new ArrayList<>();
-            List<Integer> wrong = new ArrayList<>();
-
             int total = Math.min(exercises.size(), studentAnswers.size());
+            char[] diagnostics = new char[total];
+            int correct = 0;
+            int partial = 0;
+            ExpressionEvaluator evaluator = new ExpressionEvaluator();
+            AnswerClassifier classifier = new AnswerClassifier();
 
             System.out.println("发现 " + exercises.size() + " 道题目和 " + studentAnswers.size() + " 个答案");
 
@@ -558,117 +481,90 @@ public class MathExerciseGenerator {
                 String exerciseLine = exercises.get(i);
                 String studentAnswerLine = studentAnswers.get(i);
 
-                // 解析题目表达式
-                String exercise = parseExercise(exerciseLine);
-                String studentAnswer = parseAnswer(studentAnswerLine);
-
-                if (exercise == null) {
-                    wrong.add(i + 1);
-                    continue;
-                }
-
-                if (studentAnswer == null) {
-                    wrong.add(i + 1);
-                    continue;
-                }
-
+                char code;
                 try {
                     // 计算正确答案
-                    Fraction correctAnswer = ImprovedExpressionGenerator.calculateExpressionForGrading(exercise);
-                    // 解析学生答案
-                    Fraction studentAnswerFraction = Fraction.parseFraction(studentAnswer);
-
-                    if (correctAnswer.equals(studentAnswerFraction)) {
-                        correct.add(i + 1);
-                    } else {
-                        wrong.add(i + 1);
-                        System.out.println("第 " + (i+1) + " 题错误:");
-                        System.out.println("  学生答案: " + studentAnswer);
-                        System.out.println("  正确答案: " + correctAnswer);
-                    }
-                } catch (Exception e) {
-                    wrong.add(i + 1);
+                    evaluator.evaluate(exerciseLine, bodyStart(exerciseLine), exerciseLine.length());
+                    // 分类学生答案
+                    code = classifier.classify(evaluator.getNumerator(), evaluator.getDenominator(),
+                            evaluator.getRawNumerator(), evaluator.getRawDenominator(),
+                            studentAnswerLine, bodyStart(studentAnswerLine), studentAnswerLine.length());
+                } catch (RuntimeException e) {
+                    code = AnswerClassifier.BAD_EXERCISE;
+                }
+
+                diagnostics[i] = code;
+                if (AnswerClassifier.isCorrect(code)) {
+                    correct++;
+                } else if (AnswerClassifier.isPartial(code)) {
+                    partial++;
                 }
             }
 
             // 保存批改结果
-            saveGradeResult(correct, wrong);
+            saveGradeResult(diagnostics, correct);
+            saveDiagnostics(diagnostics);
 
             System.out.println("\n批改完成！");
             System.out.println("总题数: " + total);
-            System.out.println("正确: " + correct.size() + " 题");
-            System.out.println("错误: " + wrong.size() + " 题");
+            System.out.println("正确: " + correct + " 题");
+            System.out.println("错误: " + (total - correct) + " 题（其中部分正确 " + partial + " 题）");
 
             if (total > 0) {
-                double accuracy = (double) correct.size() / total * 100;
+                double accuracy = (double) correct / total * 100;
                 System.out.printf("正确率: %.1f%%\n", accuracy);
             }
 
             System.out.println("批改结果已保存到 Grade.txt");
+            System.out.println("逐题诊断已保存到 Diagnostics.txt");
 
         } catch (IOException e) {
             System.out.println("读取文件失败: " + e.getMessage());
         }
     }
 
-    // 解析题目表达式（支持多种格式）
-    private static String parseExercise(String exerciseLine) {
-        if (exerciseLine == null || exerciseLine.trim().isEmpty()) {
-            return null;
-        }
-
-        String line = exerciseLine.trim();
-
-        // 格式1: "1. 3/4 + 1/2 ="
-        if (line.matches("^\\d+\\.\\s+.*")) {
-            String[] parts = line.split("\\.\\s+", 2);
-            if (parts.length == 2) {
-                return parts[1].replace("=", "").trim();
-            }
-        }
+    // 跳过行首题号 "1. "，返回题目或答案正文的起始下标；没有题号时返回 0
+    private static int bodyStart(String line) {
+        int length = line.length();
+        int i = 0;
+        while (i < length && line.charAt(i) <= ' ') i++;
 
-        // 格式2: "3/4 + 1/2 ="
-        if (line.contains("=")) {
-            return line.replace("=", "").trim();
+        int digits = i;
+        while (i < length && line.charAt(i) >= '0' && line.charAt(i) <= '9') i++;
+        if (i == digits || i + 1 >= length || line.charAt(i) != '.' || line.charAt(i + 1) > ' ') {
+            return 0;
         }
-
-        // 格式3: 没有等号的情况
-        return line;
+        return i + 1;
     }
 
-    // 解析答案（支持多种格式）
-    private static String parseAnswer(String answerLine) {
-        if (answerLine == null || answerLine.trim().isEmpty()) {
-            return null;
+    private static void saveGradeResult(char[] diagnostics, int correct) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter("Grade.txt")))) {
+            writer.println("Correct: " + correct + formatList(diagnostics, true));
+            writer.println("Wrong: " + (diagnostics.length - correct) + formatList(diagnostics, false));
         }
-
-        String line = answerLine.trim();
-
-        // 格式1: "1. 1'1/4"
-        if (line.matches("^\\d+\\.\\s+.*")) {
-            String[] parts = line.split("\\.\\s+", 2);
-            if (parts.length == 2) {
-                return parts[1].trim();
-            }
-        }
-
-        // 格式2: 直接答案
-        return line;
     }
 
-    private static void saveGradeResult(List<Integer> correct, List<Integer> wrong) throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter("Grade.txt"))) {
-            writer.println("Correct: " + correct.size() + formatList(correct));
-            writer.println("Wrong: " + wrong.size() + formatList(wrong));
+    // 逐题诊断：每行 "题号 代码"，代码含义见 AnswerClassifier
+    private static void saveDiagnostics(char[] diagnostics) throws IOException {
+        try (Writer writer = new BufferedWriter(new FileWriter("Diagnostics.txt"), 1 << 16)) {
+            StringBuilder sb = new StringBuilder(16);
+            for (int i = 0; i < diagnostics.length; i++) {
+                sb.setLength(0);
+                sb.append(i + 1).append(' ').append(diagnostics[i]).append('\n');
+                writer.append(sb);
+            }
         }
     }
 
-    private static String formatList(List<Integer> list) {
-        if (list.isEmpty()) return " ()";
+    // 列出诊断结果为正确（或错误）的题号
+    private static String formatList(char[] diagnostics, boolean correct) {
         StringBuilder sb = new StringBuilder(" (");
-        for (int i = 0; i < list.size(); i++) {
-            if (i > 0) sb.append(", ");
-            sb.append(list.get(i));
+        boolean first = true;
+        for (int i = 0; i < diagnostics.length; i++) {
+            if (AnswerClassifier.isCorrect(diagnostics[i]) != correct) continue;
+            if (!first) sb.append(", ");
+            sb.append(i + 1);
+            first = false;
         }
         sb.append(")");
         return sb.toString();
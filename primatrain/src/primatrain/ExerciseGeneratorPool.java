@@ -0,0 +1,342 @@
+package primatrain;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// 批量生成题目的库接口：按数值范围缓存已预热的生成器，按需拉取题目
+public class ExerciseGeneratorPool {
+    private static final int MAX_ATTEMPTS = 100;
+    private static final int DEFAULT_MAX_POOL_HASHES = 100_000;
+
+    // 去重范围
+    public enum DedupScope {
+        NONE,    // 不去重
+        REQUEST, // 同一次请求内不重复
+        POOL     // 同一数值范围的所有请求之间不重复；共享记录达到上限后清空重新开始，
+                 // 此后可能与之前其他请求的题目重复，但同一次请求内始终不重复
+    }
+
+    // 一道题目：题号、题干（含 " ="）、答案
+    public record Exercise(int number, String question, String answer) {
+        @Override
+        public String toString() {
+            return number + ". " + question;
+        }
+    }
+
+    // 生成请求（不可变）
+    public static final class Request {
+        private final int count;
+        private final int range;
+        private final Long seed;
+        private final DedupScope dedupScope;
+
+        private Request(int count, int range, Long seed, DedupScope dedupScope) {
+            if (range <= 1) throw new IllegalArgumentException("数值范围必须大于1");
+            if (count <= 0) throw new IllegalArgumentException("题目数量必须大于0");
+            this.count = count;
+            this.range = range;
+            this.seed = seed;
+            this.dedupScope = Objects.requireNonNull(dedupScope, "去重范围不能为空");
+        }
+
+        public static Request of(int count, int range) {
+            return new Request(count, range, null, DedupScope.REQUEST);
+        }
+
+        public Request seed(long seed) {
+            return new Request(count, range, seed, dedupScope);
+        }
+
+        public Request dedup(DedupScope dedupScope) {
+            return new Request(count, range, seed, dedupScope);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getRange() {
+            return range;
+        }
+
+        // 未指定种子时为空
+        public OptionalLong getSeed() {
+            return seed == null ? OptionalLong.empty() : OptionalLong.of(seed);
+        }
+
+        public DedupScope getDedupScope() {
+            return dedupScope;
+        }
+
+        @Override
+        public String toString() {
+            return "Request[count=" + count + ", range=" + range + ", seed=" + seed + ", dedup=" + dedupScope + "]";
+        }
+    }
+
+    private final ConcurrentMap<Integer, Deque<ImprovedExpressionGenerator>> idleGenerators = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Set<String>> poolHashes = new ConcurrentHashMap<>();
+    private final int maxIdlePerRange;
+    private final int maxPoolHashesPerRange;
+    private final Executor executor;
+
+    public ExerciseGeneratorPool() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_POOL_HASHES, ForkJoinPool.commonPool());
+    }
+
+    // maxIdlePerRange: 每个数值范围最多保留的空闲生成器数；
+    // maxPoolHashesPerRange: POOL 去重时每个数值范围最多保留的记录数，达到后清空重新开始；
+    // executor: Publisher 生成题目所用线程
+    public ExerciseGeneratorPool(int maxIdlePerRange, int maxPoolHashesPerRange, Executor executor) {
+        if (maxIdlePerRange <= 0) throw new IllegalArgumentException("空闲生成器数量必须大于0");
+        if (maxPoolHashesPerRange <= 0) throw new IllegalArgumentException("去重记录上限必须大于0");
+        this.maxIdlePerRange = maxIdlePerRange;
+        this.maxPoolHashesPerRange = maxPoolHashesPerRange;
+        this.executor = Objects.requireNonNull(executor, "executor不能为空");
+    }
+
+    // 拉取式题目流，消费多少生成多少；提前结束时应关闭流以归还生成器。
+    // 连续多次找不到新题目时（数值范围太小或去重记录已占满题目空间）流会提前结束，
+    // 题目数可能少于 count，可比较最后一题的题号判断
+    public Stream<Exercise> stream(Request request) {
+        Cursor cursor = new Cursor(request);
+        Spliterator<Exercise> spliterator = Spliterators.spliteratorUnknownSize(cursor,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close);
+    }
+
+    // 响应式题目发布者，只按订阅者 request(n) 的需求生成，不做缓冲；
+    // 与 stream 相同，题目空间耗尽时会提前 onComplete，题目数可能少于 count
+    public Flow.Publisher<Exercise> publisher(Request request) {
+        Objects.requireNonNull(request, "请求不能为空");
+        return subscriber -> {
+            Objects.requireNonNull(subscriber, "订阅者不能为空");
+            Subscription subscription = new Subscription(request, subscriber);
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    // 清空所有数值范围的 POOL 去重记录
+    public void clearPoolHashes() {
+        for (Set<String> hashes : poolHashes.values()) {
+            hashes.clear();
+        }
+    }
+
+    // 清空指定数值范围的 POOL 去重记录
+    public void clearPoolHashes(int range) {
+        Set<String> hashes = poolHashes.get(range);
+        if (hashes != null) hashes.clear();
+    }
+
+    private ImprovedExpressionGenerator borrow(int range) {
+        Deque<ImprovedExpressionGenerator> idle = idleGenerators.get(range);
+        ImprovedExpressionGenerator generator = idle == null ? null : idle.pollFirst();
+        return generator != null ? generator : new ImprovedExpressionGenerator(range);
+    }
+
+    private void giveBack(int range, ImprovedExpressionGenerator generator) {
+        Deque<ImprovedExpressionGenerator> idle =
+                idleGenerators.computeIfAbsent(range, r -> new ConcurrentLinkedDeque<>());
+        if (idle.size() < maxIdlePerRange) {
+            idle.offerFirst(generator);
+        }
+    }
+
+    // 单次请求的游标：首次取题时借出生成器，结束或关闭时归还
+    private final class Cursor implements Iterator<Exercise> {
+        private final Request request;
+        private final Set<String> requestHashes;
+        private final Set<String> sharedHashes;
+        private final Predicate<String> accept;
+        private ImprovedExpressionGenerator generator;
+        private Exercise next;
+        private int produced;
+        private boolean finished;
+
+        Cursor(Request request) {
+            this.request = Objects.requireNonNull(request, "请求不能为空");
+            switch (request.dedupScope) {
+                case NONE:
+                    requestHashes = null;
+                    sharedHashes = null;
+                    accept = hash -> true;
+                    break;
+                case POOL:
+                    // 本次请求的记录不随共享记录清空，保证请求内不重复
+                    requestHashes = new HashSet<>();
+                    sharedHashes = poolHashes.computeIfAbsent(request.range, r -> ConcurrentHashMap.newKeySet());
+                    accept = hash -> !sharedHashes.contains(hash) && requestHashes.add(hash) && sharedHashes.add(hash);
+                    break;
+                default:
+                    requestHashes = new HashSet<>();
+                    sharedHashes = null;
+                    accept = requestHashes::add;
+                    break;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            if (finished) return false;
+            if (produced >= request.count) {
+                close();
+                return false;
+            }
+
+            if (generator == null) {
+                generator = borrow(request.range);
+                if (request.seed != null) generator.reseed(request.seed);
+            }
+
+            if (sharedHashes != null && sharedHashes.size() >= maxPoolHashesPerRange) {
+                // 共享记录达到上限，清空后重新开始，避免长期运行时无限增长
+                sharedHashes.clear();
+            }
+
+            String[] result = generator.generateExpression(MAX_ATTEMPTS, accept);
+            if (result == null) {
+                // 题目空间已耗尽
+                close();
+                return false;
+            }
+            next = new Exercise(++produced, result[0], result[1]);
+            return true;
+        }
+
+        @Override
+        public Exercise next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Exercise exercise = next;
+            next = null;
+            return exercise;
+        }
+
+        boolean reachedCount() {
+            return next == null && produced >= request.count;
+        }
+
+        void close() {
+            if (finished) return;
+            finished = true;
+            next = null;
+            if (generator != null) {
+                // 指定过种子的生成器序列可预测，归还前换成随机种子，避免影响之后未指定种子的请求
+                if (request.seed != null) generator.reseed(ThreadLocalRandom.current().nextLong());
+                giveBack(request.range, generator);
+                generator = null;
+            }
+        }
+    }
+
+    // 订阅：需求计数 + 单线程排空，保证 onNext 串行且不超过已请求数量
+    private final class Subscription implements Flow.Subscription, Runnable {
+        private final Cursor cursor;
+        private final Flow.Subscriber<? super Exercise> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile Throwable pendingError;
+        private boolean done;
+
+        Subscription(Request request, Flow.Subscriber<? super Exercise> subscriber) {
+            this.cursor = new Cursor(request);
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                pendingError = new IllegalArgumentException("请求数量必须大于0: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> {
+                    long sum = current + add;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancelled.set(true);
+                    cursor.close();
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) return;
+            if (cancelled.get()) {
+                finish();
+                return;
+            }
+            Throwable error = pendingError;
+            if (error != null) {
+                finish();
+                subscriber.onError(error);
+                return;
+            }
+
+            long emitted = 0;
+            long requested = demand.get();
+            try {
+                while (emitted < requested && !cancelled.get()) {
+                    if (!cursor.hasNext()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext(cursor.next());
+                    emitted++;
+                }
+                // 已达到题目数量时立即 onComplete，不为此额外生成题目
+                if (!cancelled.get() && cursor.reachedCount()) {
+                    finish();
+                    subscriber.onComplete();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                finish();
+                subscriber.onError(e);
+                return;
+            }
+            if (emitted > 0 && requested != Long.MAX_VALUE) {
+                demand.addAndGet(-emitted);
+            }
+        }
+
+        private void finish() {
+            done = true;
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package primatrain;
+
+import java.util.*;
+
+// 分数类
+public class Fraction {
+    private int numerator;
+    private int denominator;
+    private int whole;
+
+    public Fraction(int numerator, int denominator) {
+        if (denominator == 0) throw new IllegalArgumentException("分母不能为0");
+        this.numerator = Math.abs(numerator);
+        this.denominator = Math.abs(denominator);
+        this.whole = 0;
+        normalize();
+    }
+
+    public Fraction(int whole, int numerator, int denominator) {
+        if (denominator == 0) throw new IllegalArgumentException("分母不能为0");
+        this.whole = Math.abs(whole);
+        this.numerator = Math.abs(numerator);
+        this.denominator = Math.abs(denominator);
+        normalize();
+    }
+
+    private void normalize() {
+        if (numerator >= denominator) {
+            whole += numerator / denominator;
+            numerator %= denominator;
+        }
+
+        int gcd = gcd(numerator, denominator);
+        numerator /= gcd;
+        denominator /= gcd;
+
+        if (numerator == 0) denominator = 1;
+    }
+
+    private int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    public Fraction add(Fraction other) {
+        long num1 = this.getNumeratorValue();
+        long den1 = this.denominator;
+        long num2 = other.getNumeratorValue();
+        long den2 = other.denominator;
+        return new Fraction((int)(num1 * den2 + num2 * den1), (int)(den1 * den2));
+    }
+
+    public Fraction subtract(Fraction other) {
+        long num1 = this.getNumeratorValue();
+        long den1 = this.denominator;
+        long num2 = other.getNumeratorValue();
+        long den2 = other.denominator;
+        return new Fraction((int)(num1 * den2 - num2 * den1), (int)(den1 * den2));
+    }
+
+    public Fraction multiply(Fraction other) {
+        long num1 = this.getNumeratorValue();
+        long den1 = this.denominator;
+        long num2 = other.getNumeratorValue();
+        long den2 = other.denominator;
+        return new Fraction((int)(num1 * num2), (int)(den1 * den2));
+    }
+
+    public Fraction divide(Fraction other) {
+        if (other.getNumeratorValue() == 0) throw new ArithmeticException("除数不能为0");
+        long num1 = this.getNumeratorValue();
+        long den1 = this.denominator;
+        long num2 = other.getNumeratorValue();
+        long den2 = other.denominator;
+        return new Fraction((int)(num1 * den2), (int)(den1 * num2));
+    }
+
+    public int getNumeratorValue() {
+        return whole * denominator + numerator;
+    }
+
+    public boolean greaterOrEqual(Fraction other) {
+        return this.getNumeratorValue() * (long)other.denominator >= other.getNumeratorValue() * (long)this.denominator;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof Fraction other)) return false;
+        return this.getNumeratorValue() * (long)other.denominator == other.getNumeratorValue() * (long)this.denominator;
+    }
+
+    @Override
+    public int hashCode() {
+        Fraction simplified = new Fraction(getNumeratorValue(), denominator);
+        return Objects.hash(simplified.numerator, simplified.denominator);
+    }
+
+    @Override
+    public String toString() {
+        if (whole == 0) return numerator == 0 ? "0" : numerator + "/" + denominator;
+        return numerator == 0 ? String.valueOf(whole) : whole + "'" + numerator + "/" + denominator;
+    }
+
+    public static Fraction parseFraction(String str) {
+        str = str.trim();
+        if (str.contains("'")) {
+            String[] parts = str.split("'");
+            int whole = Integer.parseInt(parts[0]);
+            String[] fractionParts = parts[1].split("/");
+            return new Fraction(whole, Integer.parseInt(fractionParts[0]), Integer.parseInt(fractionParts[1]));
+        } else if (str.contains("/")) {
+            String[] parts = str.split("/");
+            return new Fraction(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        } else {
+            return new Fraction(Integer.parseInt(str), 1);
+        }
+    }
+
+    public boolean isProperFraction() {
+        return whole == 0 && numerator < denominator;
+    }
+
+    public boolean isZero() {
+        return whole == 0 && numerator == 0;
+    }
+
+    public boolean isNegative() {
+        return false; // 分数永远不会出现负数
+    }
+}
@@ -0,0 +1,302 @@
+package primatrain;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+// 表达式生成器
+class ImprovedExpressionGenerator {
+    private final int range;
+    private final Random random;
+
+    public ImprovedExpressionGenerator(int range) {
+        this.range = range;
+        this.random = new Random();
+    }
+
+    // 重新设定随机种子，供生成器池复用时得到可重复的题目序列
+    public void reseed(long seed) {
+        random.setSeed(seed);
+    }
+
+    // 生成表达式（1-3个运算符），accept 判断并记录题目指纹，返回 false 时视为重复并重新生成
+    public String[] generateExpression(int maxAttempts, Predicate<String> accept) {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            try {
+                int operatorCount = random.nextInt(3) + 1; // 1-3个运算符
+                String[] result = generateValidExpression(operatorCount);
+
+                if (result != null && accept.test(result[2])) {
+                    return new String[]{result[0], result[1]};
+                }
+            } catch (Exception e) {
+                // 忽略错误，继续尝试
+            }
+        }
+        return null;
+    }
+
+    private String[] generateValidExpression(int operatorCount) {
+        if (operatorCount == 1) {
+            return generateValidOneOperatorExpression();
+        } else if (operatorCount == 2) {
+            return generateValidTwoOperatorExpression();
+        } else {
+            return generateValidThreeOperatorExpression();
+        }
+    }
+
+    private String[] generateValidOneOperatorExpression() {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            String operator = getRandomOperator();
+            Fraction num1 = generateNumber();
+            Fraction num2 = generateNumber();
+
+            // 确保运算合法性
+            if (!isOperationValid(operator, num1, num2)) {
+                continue;
+            }
+
+            String expression = num1 + " " + operator + " " + num2;
+            Fraction result = calculateSimple(expression);
+
+            // 验证结果
+            if (result.isNegative()) {
+                continue;
+            }
+
+            String hash = generateHash(expression, result);
+            return new String[]{expression + " =", result.toString(), hash};
+        }
+        return null;
+    }
+
+    private String[] generateValidTwoOperatorExpression() {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            String op1 = getRandomOperator();
+            String op2 = getRandomOperator();
+
+            Fraction num1 = generateNumber();
+            Fraction num2 = generateNumber();
+            Fraction num3 = generateNumber();
+
+            // 构建表达式
+            String expression = buildTwoOperatorExpression(op1, op2, num1, num2, num3);
+
+            // 验证整个表达式的合法性
+            if (!isExpressionValid(expression)) {
+                continue;
+            }
+
+            Fraction result = calculateComplexExpression(expression);
+
+            // 验证最终结果
+            if (result.isNegative()) {
+                continue;
+            }
+
+            String hash = generateHash(expression, result);
+            return new String[]{expression + " =", result.toString(), hash};
+        }
+        return null;
+    }
+
+    private String[] generateValidThreeOperatorExpression() {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            String op1 = getRandomOperator();
+            String op2 = getRandomOperator();
+            String op3 = getRandomOperator();
+
+            Fraction num1 = generateNumber();
+            Fraction num2 = generateNumber();
+            Fraction num3 = generateNumber();
+            Fraction num4 = generateNumber();
+
+            // 构建表达式
+            String expression = buildThreeOperatorExpression(op1, op2, op3, num1, num2, num3, num4);
+
+            // 验证整个表达式的合法性
+            if (!isExpressionValid(expression)) {
+                continue;
+            }
+
+            Fraction result = calculateComplexExpression(expression);
+
+            // 验证最终结果
+            if (result.isNegative()) {
+                continue;
+            }
+
+            String hash = generateHash(expression, result);
+            return new String[]{expression + " =", result.toString(), hash};
+        }
+        return null;
+    }
+
+    private boolean isOperationValid(String operator, Fraction num1, Fraction num2) {
+        try {
+            if (operator.equals("-")) {
+                // 确保减法不产生负数
+                return num1.greaterOrEqual(num2);
+            } else if (operator.equals("÷")) {
+                // 确保除法结果是真分数且除数不为0
+                if (num2.isZero()) return false;
+                Fraction result = num1.divide(num2);
+                return result.isProperFraction();
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean isExpressionValid(String expression) {
+        try {
+            // 检查所有中间步骤
+            String tempExpression = expression;
+
+            // 处理括号
+            while (tempExpression.contains("(")) {
+                int start = tempExpression.lastIndexOf("(");
+                int end = tempExpression.indexOf(")", start);
+                String subExpr = tempExpression.substring(start + 1, end);
+
+                // 验证子表达式
+                if (!isSimpleExpressionValid(subExpr)) {
+                    return false;
+                }
+
+                Fraction subResult = calculateSimple(subExpr);
+                tempExpression = tempExpression.substring(0, start) + subResult.toString() + tempExpression.substring(end + 1);
+            }
+
+            // 验证剩余表达式
+            return isSimpleExpressionValid(tempExpression);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean isSimpleExpressionValid(String expression) {
+        try {
+            String[] tokens = expression.split(" ");
+            Fraction current = Fraction.parseFraction(tokens[0]);
+
+            for (int i = 1; i < tokens.length; i += 2) {
+                String operator = tokens[i];
+                Fraction next = Fraction.parseFraction(tokens[i + 1]);
+
+                if (!isOperationValid(operator, current, next)) {
+                    return false;
+                }
+
+                current = calculateSimple(current + " " + operator + " " + next);
+
+                if (current.isNegative()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private String getRandomOperator() {
+        String[] operators = {"+", "-", "×", "÷"};
+        return operators[random.nextInt(operators.length)];
+    }
+
+    private Fraction generateNumber() {
+        if (random.nextBoolean()) {
+            // 生成自然数
+            return new Fraction(random.nextInt(range - 1) + 1, 1);
+        } else {
+            // 生成真分数
+            int denominator = random.nextInt(range - 2) + 2;
+            int numerator = random.nextInt(denominator - 1) + 1;
+            return new Fraction(numerator, denominator);
+        }
+    }
+
+    private String buildTwoOperatorExpression(String op1, String op2, Fraction num1, Fraction num2, Fraction num3) {
+        boolean needParentheses = needParentheses(op1, op2);
+
+        if (needParentheses) {
+            return "(" + num1 + " " + op1 + " " + num2 + ") " + op2 + " " + num3;
+        } else {
+            return num1 + " " + op1 + " " + num2 + " " + op2 + " " + num3;
+        }
+    }
+
+    private String buildThreeOperatorExpression(String op1, String op2, String op3, Fraction num1, Fraction num2, Fraction num3, Fraction num4) {
+        int structure = random.nextInt(4);
+        switch (structure) {
+            case 0:
+                return num1 + " " + op1 + " " + num2 + " " + op2 + " " + num3 + " " + op3 + " " + num4;
+            case 1:
+                return "(" + num1 + " " + op1 + " " + num2 + ") " + op2 + " " + num3 + " " + op3 + " " + num4;
+            case 2:
+                return num1 + " " + op1 + " (" + num2 + " " + op2 + " " + num3 + ") " + op3 + " " + num4;
+            case 3:
+                return "(" + num1 + " " + op1 + " " + num2 + ") " + op2 + " (" + num3 + " " + op3 + " " + num4 + ")";
+            default:
+                return num1 + " " + op1 + " " + num2 + " " + op2 + " " + num3 + " " + op3 + " " + num4;
+        }
+    }
+
+    private boolean needParentheses(String op1, String op2) {
+        Map<String, Integer> precedence = new HashMap<>();
+        precedence.put("+", 1);
+        precedence.put("-", 1);
+        precedence.put("×", 2);
+        precedence.put("÷", 2);
+        return precedence.get(op2) > precedence.get(op1);
+    }
+
+    private Fraction calculateSimple(String expression) {
+        String[] parts = expression.split(" ");
+        Fraction num1 = Fraction.parseFraction(parts[0]);
+        String op = parts[1];
+        Fraction num2 = Fraction.parseFraction(parts[2]);
+
+        switch (op) {
+            case "+":
+                return num1.add(num2);
+            case "-":
+                return num1.subtract(num2);
+            case "×":
+                return num1.multiply(num2);
+            case "÷":
+                return num1.divide(num2);
+            default:
+                throw new IllegalArgumentException("未知运算符: " + op);
+        }
+    }
+
+    private Fraction calculateComplexExpression(String expression) {
+        // 处理括号表达式
+        while (expression.contains("(")) {
+            int start = expression.lastIndexOf("(");
+            int end = expression.indexOf(")", start);
+            String subExpr = expression.substring(start + 1, end);
+            Fraction subResult = calculateSimple(subExpr);
+            expression = expression.substring(0, start) + subResult.toString() + expression.substring(end + 1);
+        }
+
+        // 计算剩余表达式
+        String[] tokens = expression.split(" ");
+        Fraction result = Fraction.parseFraction(tokens[0]);
+
+        for (int i = 1; i < tokens.length; i += 2) {
+            String operator = tokens[i];
+            Fraction nextNum = Fraction.parseFraction(tokens[i + 1]);
+            result = calculateSimple(result + " " + operator + " " + nextNum);
+        }
+
+        return result;
+    }
+
+    private String generateHash(String expression, Fraction result) {
+        return expression.replaceAll("\\s+", "").replace("(", "").replace(")", "") + "=" + result.toString();
+    }
+}